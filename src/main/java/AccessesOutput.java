@@ -1,10 +1,15 @@
 import seakers.orekit.coverage.access.TimeIntervalArray;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 
 public class AccessesOutput {
     // satellite, instrument, targetLocation, accesses
     public HashMap<String, HashMap<String, HashMap<String, TimeIntervalArray>>> output;
+    // tile, grid points sharing the same accesses (only set when grid tiles are aggregated)
+    public HashMap<String, ArrayList<String>> tiles;
+    // grid point, [latitude, longitude] (deg) of every simulated grid point (only set when a grid is used)
+    public HashMap<String, double[]> gridPoints;
 
     public AccessesOutput() {
         output = new HashMap<>();
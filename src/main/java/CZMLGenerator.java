@@ -55,6 +55,9 @@ public class CZMLGenerator {
         // configure Orekit
         File home       = new File(System.getProperty("user.home"));
         File orekitData = new File(home, "orekit-data");
+        if (System.getProperty("orekit.data") != null) {
+            orekitData = new File(System.getProperty("orekit.data"));
+        }
         if (!orekitData.exists()) {
             System.err.format(Locale.US, "Failed to find %s folder%n",
                     orekitData.getAbsolutePath());
@@ -72,10 +75,15 @@ public class CZMLGenerator {
     public static void main(String[] args) {
         configureOrekit();
 
+        int processors = Runtime.getRuntime().availableProcessors();
+        run(Paths.get(System.getProperty("user.dir"), "int_files"), processors-3);
+    }
+
+    public static void run(Path intFilesPath, int numThreads) {
         // 1. Load JSON files with propagation information
         JsonParser parser = new JsonParser();
-        Path missionPath = Paths.get(System.getProperty("user.dir"),"int_files", "mission.json");
-        Path satellitesPath = Paths.get(System.getProperty("user.dir"),"int_files", "satellites.json");
+        Path missionPath = intFilesPath.resolve("mission.json");
+        Path satellitesPath = intFilesPath.resolve("satellites.json");
         JsonObject missionJson = null;
         JsonArray satellitesJson = null;
         try {
@@ -89,8 +97,7 @@ public class CZMLGenerator {
             System.exit(1);
         }
 
-        int processors = Runtime.getRuntime().availableProcessors();
-        OrekitConfig.init(processors-3);
+        OrekitConfig.init(numThreads);
 
         // 2. Get the start and end dates from an observation in the mission
         JsonArray observations = missionJson.getAsJsonArray("observations");
@@ -120,20 +127,32 @@ public class CZMLGenerator {
             packet.writeId("document");
             packet.writeVersion("1.0");
             try (ClockCesiumWriter clock = packet.openClockProperty()) {
-                double startSeconds = startDate.durationFrom(AbsoluteDate.JULIAN_EPOCH);
-                int startDays = (int)startSeconds % (24*3600);
-                double startDaySeconds = startSeconds - startDays*24*3600;
-                double endSeconds = endDate.durationFrom(AbsoluteDate.JULIAN_EPOCH);
-                int endDays = (int)endSeconds % (24*3600);
-                double endDaySeconds = endSeconds - endDays*24*3600;
-                clock.writeInterval(new JulianDate(startDays, startDaySeconds), new JulianDate(endDays, endDaySeconds));
-                clock.writeCurrentTime(new JulianDate(startDays, startDaySeconds));
+                clock.writeInterval(julianDate(startDate), julianDate(endDate));
+                clock.writeCurrentTime(julianDate(startDate));
                 clock.writeMultiplier(1);
                 clock.writeRange(ClockRange.LOOP_STOP);
                 clock.writeStep(ClockStep.SYSTEM_CLOCK_MULTIPLIER);
             }
         }
 
+        // Time-varying data goes to one segment per chunk, or into the base document if the output is not chunked
+        double missionDuration = endDate.durationFrom(startDate);
+        double chunkSeconds = chunkHours(missionJson) * 3600.;
+        ArrayList<CzmlSegment> segments = new ArrayList<>();
+        if (chunkSeconds > 0.) {
+            for (double segmentStart = 0.; segmentStart < missionDuration; segmentStart += chunkSeconds) {
+                CzmlSegment segment = new CzmlSegment(segmentStart, FastMath.min(segmentStart + chunkSeconds, missionDuration));
+                try (PacketCesiumWriter packet = segment.stream.openPacket(segment.output)) {
+                    packet.writeId("document");
+                    packet.writeVersion("1.0");
+                }
+                segments.add(segment);
+            }
+        }
+        else {
+            segments.add(new CzmlSegment(0., missionDuration, stringWriter, output, stream));
+        }
+
         // Load the locations from the JSON and create a coverage definition for them
         JsonArray locations = missionJson.getAsJsonArray("locations");
         ArrayList<CoveragePoint> targetLocations = new ArrayList<>();
@@ -175,6 +194,8 @@ public class CZMLGenerator {
         // set the type of propagation
         PropagatorFactory pf = new PropagatorFactory(PropagatorType.TLE, new Properties());
 
+        double minPassFraction = EventDetectionSettings.minPassFraction(missionJson);
+
         // Iterate over satellites, build scenarios, run scenarios in parallel
         for (JsonElement satellite: satellitesJson) {
             JsonObject satObject = satellite.getAsJsonObject();
@@ -186,6 +207,7 @@ public class CZMLGenerator {
 
             // define instruments based on JSON
             ArrayList<Instrument> payload = new ArrayList<>();
+            ArrayList<EventDetectionSettings> payloadSettings = new ArrayList<>();
             for (JsonElement instrument: satObject.get("sensors").getAsJsonArray()) {
                 JsonObject instrObject = instrument.getAsJsonObject();
                 String fovType = instrObject.get("geometry_type").getAsString();
@@ -205,6 +227,7 @@ public class CZMLGenerator {
                 String instrName = instrObject.get("name").getAsString();
                 Instrument view = new Instrument(instrName, fovDef, 100, 100);
                 payload.add(view);
+                payloadSettings.add(new EventDetectionSettings(satName, satTLE, instrObject, minPassFraction));
             }
 
             ArrayList<Satellite> satellites = new ArrayList<>();
@@ -219,6 +242,7 @@ public class CZMLGenerator {
             // can set the properties of the analyses
             Properties propertiesEventAnalysis = new Properties();
             propertiesEventAnalysis.setProperty("fov.saveAccess", "true");
+            EventDetectionSettings.apply(satName, propertiesEventAnalysis, payloadSettings);
 
             // set the coverage event analyses
             EventAnalysisFactory eaf = new EventAnalysisFactory(startDate, endDate, inertialFrame, pf);
@@ -253,29 +277,10 @@ public class CZMLGenerator {
             prop.setMasterMode(stepHandler);
             prop.propagate(startDate, endDate);
 
-            // Save everything to CZML
+            // Save static satellite properties to CZML
             try (PacketCesiumWriter packet = stream.openPacket(output)) {
                 packet.writeId(sat.getName());
 
-                ArrayList<JulianDate> julianDates = new ArrayList<>();
-                for (AbsoluteDate date: stepHandler.dates) {
-                    double seconds = date.durationFrom(AbsoluteDate.JULIAN_EPOCH);
-                    int days = (int)seconds % (24*3600);
-                    double day_seconds = seconds - days*24*3600;
-                    julianDates.add(new JulianDate(days, day_seconds));
-                }
-                // Satellite position
-                try (PositionCesiumWriter position = packet.openPositionProperty()) {
-                    position.writeInterpolationAlgorithm(CesiumInterpolationAlgorithm.LAGRANGE);
-                    position.writeInterpolationDegree(5);
-                    position.writeReferenceFrame("INERTIAL");
-
-                    ArrayList<Cartesian> cartesians = new ArrayList<>();
-                    for (Vector3D sat_position: stepHandler.positions) {
-                        cartesians.add(new Cartesian(sat_position.getX(), sat_position.getY(), sat_position.getZ()));
-                    }
-                    position.writeCartesian(julianDates, cartesians);
-                }
                 // Satellite path
                 try (PathCesiumWriter path = packet.openPathProperty()) {
                     path.writeLeadTimeProperty(3000.);
@@ -289,20 +294,6 @@ public class CZMLGenerator {
                     }
                     path.writeResolutionProperty(300);
                 }
-                // Satellite orientation
-                try (OrientationCesiumWriter orientation = packet.openOrientationProperty()) {
-                    orientation.writeInterpolationAlgorithm(CesiumInterpolationAlgorithm.LINEAR);
-                    orientation.writeInterpolationDegree(1);
-
-                    ArrayList<UnitQuaternion> quaternions = new ArrayList<>();
-                    for (Attitude satOrientation: stepHandler.attitudes) {
-                        Rotation rotation = satOrientation.getRotation();
-                        Rotation earthRotation = earthFrame.getTransformTo(satOrientation.getReferenceFrame(), satOrientation.getDate()).getRotation();
-                        Rotation finalRotation = rotation.applyTo(earthRotation);
-                        quaternions.add(new UnitQuaternion(finalRotation.getQ0(), finalRotation.getQ1(), finalRotation.getQ2(), finalRotation.getQ3()));
-                    }
-                    orientation.writeUnitQuaternion(julianDates, quaternions);
-                }
                 // Satellite point graphic
                 try (PointCesiumWriter point = packet.openPointProperty()) {
                     point.writePixelSizeProperty(15.);
@@ -318,6 +309,60 @@ public class CZMLGenerator {
                     label.writeVerticalOriginProperty(CesiumVerticalOrigin.CENTER);
                 }
             }
+
+            ArrayList<JulianDate> julianDates = new ArrayList<>();
+            double[] stepTimes = new double[stepHandler.dates.size()];
+            for (int i = 0; i < stepTimes.length; ++i) {
+                julianDates.add(julianDate(stepHandler.dates.get(i)));
+                stepTimes[i] = stepHandler.dates.get(i).durationFrom(startDate);
+            }
+            ArrayList<Cartesian> cartesians = new ArrayList<>();
+            for (Vector3D sat_position: stepHandler.positions) {
+                cartesians.add(new Cartesian(sat_position.getX(), sat_position.getY(), sat_position.getZ()));
+            }
+            ArrayList<UnitQuaternion> quaternions = new ArrayList<>();
+            for (Attitude satOrientation: stepHandler.attitudes) {
+                Rotation rotation = satOrientation.getRotation();
+                Rotation earthRotation = earthFrame.getTransformTo(satOrientation.getReferenceFrame(), satOrientation.getDate()).getRotation();
+                Rotation finalRotation = rotation.applyTo(earthRotation);
+                quaternions.add(new UnitQuaternion(finalRotation.getQ0(), finalRotation.getQ1(), finalRotation.getQ2(), finalRotation.getQ3()));
+            }
+
+            // Save satellite samples to each segment, with a few extra samples at the edges for interpolation
+            int sampleCursor = 0;
+            for (CzmlSegment segment: segments) {
+                while (sampleCursor < stepTimes.length && stepTimes[sampleCursor] < segment.start) {
+                    ++sampleCursor;
+                }
+                int first = sampleCursor;
+                int last = first;
+                while (last < stepTimes.length && stepTimes[last] <= segment.end) {
+                    ++last;
+                }
+                first = FastMath.max(0, first - 3);
+                last = FastMath.min(stepTimes.length, last + 3);
+                if (first >= last) {
+                    continue;
+                }
+
+                try (PacketCesiumWriter packet = segment.stream.openPacket(segment.output)) {
+                    packet.writeId(sat.getName());
+
+                    // Satellite position
+                    try (PositionCesiumWriter position = packet.openPositionProperty()) {
+                        position.writeInterpolationAlgorithm(CesiumInterpolationAlgorithm.LAGRANGE);
+                        position.writeInterpolationDegree(5);
+                        position.writeReferenceFrame("INERTIAL");
+                        position.writeCartesian(julianDates, cartesians, first, last - first);
+                    }
+                    // Satellite orientation
+                    try (OrientationCesiumWriter orientation = packet.openOrientationProperty()) {
+                        orientation.writeInterpolationAlgorithm(CesiumInterpolationAlgorithm.LINEAR);
+                        orientation.writeInterpolationDegree(1);
+                        orientation.writeUnitQuaternion(julianDates, quaternions, first, last - first);
+                    }
+                }
+            }
             // Sensors FOV
             accesses.forEach(((instrument, instrAccesses) -> {
                 // Merge all instrument accesses into single array
@@ -325,12 +370,9 @@ public class CZMLGenerator {
                 TimeIntervalArray mergedAccesses = merger.orCombine();
 
                 ArrayList<Color> colors = new ArrayList<>();
-                ArrayList<JulianDate> julianDates = new ArrayList<>();
+                ArrayList<Double> colorTimes = new ArrayList<>();
                 boolean isInside = true;
-                double startSeconds = startDate.durationFrom(AbsoluteDate.JULIAN_EPOCH);
-                int startDays = (int)startSeconds % (24*3600);
-                double startDayseconds = startSeconds - startDays*24*3600;
-                julianDates.add(new JulianDate(startDays, startDayseconds));
+                colorTimes.add(0.);
                 if (!mergedAccesses.isEmpty()) {
                     if (mergedAccesses.getRiseSetTimes().get(0).isRise()) {
                         colors.add(new Color(255, 255, 255, 255));
@@ -345,10 +387,7 @@ public class CZMLGenerator {
                     colors.add(new Color(255, 255, 255, 255));
                 }
                 for (RiseSetTime time: mergedAccesses) {
-                    double seconds = mergedAccesses.getHead().durationFrom(AbsoluteDate.JULIAN_EPOCH) + time.getTime();
-                    int days = (int)seconds % (24*3600);
-                    double day_seconds = seconds - days*24*3600;
-                    julianDates.add(new JulianDate(days, day_seconds));
+                    colorTimes.add(mergedAccesses.getHead().durationFrom(startDate) + time.getTime());
                     if (isInside) {
                         colors.add(new Color(255, 255, 255, 255));
                         isInside = false;
@@ -358,7 +397,9 @@ public class CZMLGenerator {
                         isInside = true;
                     }
                 }
+                colorTimes.add(missionDuration);
 
+                // Static sensor geometry, the lateral surface references the intersection color instead of repeating it
                 try (PacketCesiumWriter packet = stream.openPacket(output)) {
                     packet.writeId(instrument.getName());
                     packet.writeParent(sat.getName());
@@ -377,27 +418,10 @@ public class CZMLGenerator {
                             try (DoubleCesiumWriter yHalfAngle = rectangularSensor.openYHalfAngleProperty()) {
                                 yHalfAngle.writeNumber(FastMath.toRadians(15.));
                             }
-                            try (ColorCesiumWriter intersectionColor = rectangularSensor.openIntersectionColorProperty()) {
-                                try (CesiumIntervalListWriter<ColorCesiumWriter> intervals = intersectionColor.openMultipleIntervals()) {
-                                    for (int i = 0; i < julianDates.size() - 1; ++i) {
-                                        try (ColorCesiumWriter interval = intervals.openInterval()) {
-                                            interval.writeInterval(julianDates.get(i), julianDates.get(i+1));
-                                            interval.writeRgba(colors.get(i));
-                                        }
-                                    }
-                                }
-                            }
                             try (MaterialCesiumWriter lateralMaterial = rectangularSensor.openLateralSurfaceMaterialProperty()) {
                                 try (GridMaterialCesiumWriter gridMaterial = lateralMaterial.openGridProperty()) {
                                     try (ColorCesiumWriter color = gridMaterial.openColorProperty()) {
-                                        try (CesiumIntervalListWriter<ColorCesiumWriter> intervals = color.openMultipleIntervals()) {
-                                            for (int i = 0; i < julianDates.size() - 1; ++i) {
-                                                try (ColorCesiumWriter interval = intervals.openInterval()) {
-                                                    interval.writeInterval(julianDates.get(i), julianDates.get(i+1));
-                                                    interval.writeRgba(colors.get(i));
-                                                }
-                                            }
-                                        }
+                                        color.writeReference(new Reference(instrument.getName(), Arrays.asList("rectangularSensor", "intersectionColor")));
                                     }
                                 }
                             }
@@ -408,33 +432,37 @@ public class CZMLGenerator {
                             try (DoubleCesiumWriter outerHalfAngle = conicSensor.openOuterHalfAngleProperty()) {
                                 outerHalfAngle.writeNumber(((CircularFieldOfView) instrument.getFOV()).getHalfAperture());
                             }
-                            try (ColorCesiumWriter intersectionColor = conicSensor.openIntersectionColorProperty()) {
-                                try (CesiumIntervalListWriter<ColorCesiumWriter> intervals = intersectionColor.openMultipleIntervals()) {
-                                    for (int i = 0; i < julianDates.size() - 1; ++i) {
-                                        try (ColorCesiumWriter interval = intervals.openInterval()) {
-                                            interval.writeInterval(julianDates.get(i), julianDates.get(i+1));
-                                            interval.writeRgba(colors.get(i));
-                                        }
-                                    }
-                                }
-                            }
                             try (MaterialCesiumWriter lateralMaterial = conicSensor.openLateralSurfaceMaterialProperty()) {
                                 try (GridMaterialCesiumWriter gridMaterial = lateralMaterial.openGridProperty()) {
                                     try (ColorCesiumWriter color = gridMaterial.openColorProperty()) {
-                                        try (CesiumIntervalListWriter<ColorCesiumWriter> intervals = color.openMultipleIntervals()) {
-                                            for (int i = 0; i < julianDates.size() - 1; ++i) {
-                                                try (ColorCesiumWriter interval = intervals.openInterval()) {
-                                                    interval.writeInterval(julianDates.get(i), julianDates.get(i+1));
-                                                    interval.writeRgba(colors.get(i));
-                                                }
-                                            }
-                                        }
+                                        color.writeReference(new Reference(instrument.getName(), Arrays.asList("conicSensor", "intersectionColor")));
                                     }
                                 }
                             }
                         }
                     }
+                }
 
+                // Access-dependent intersection color, sliced per segment
+                int colorCursor = 0;
+                for (CzmlSegment segment: segments) {
+                    try (PacketCesiumWriter packet = segment.stream.openPacket(segment.output)) {
+                        packet.writeId(instrument.getName());
+                        if (instrument.getFOV() instanceof DoubleDihedraFieldOfView) {
+                            try (RectangularSensorCesiumWriter rectangularSensor = packet.openRectangularSensorProperty()) {
+                                try (ColorCesiumWriter intersectionColor = rectangularSensor.openIntersectionColorProperty()) {
+                                    colorCursor = writeColorIntervals(intersectionColor, colorTimes, colors, startDate, segment, colorCursor);
+                                }
+                            }
+                        }
+                        else if (instrument.getFOV() instanceof CircularFieldOfView) {
+                            try (ConicSensorCesiumWriter conicSensor = packet.openConicSensorProperty()) {
+                                try (ColorCesiumWriter intersectionColor = conicSensor.openIntersectionColorProperty()) {
+                                    colorCursor = writeColorIntervals(intersectionColor, colorTimes, colors, startDate, segment, colorCursor);
+                                }
+                            }
+                        }
+                    }
                 }
             }));
         }
@@ -451,13 +479,120 @@ public class CZMLGenerator {
 
         String czml = "[" + stringWriter.toString() + "]";
 
-        Path outputPath = Paths.get(System.getProperty("user.dir"),"int_files", "demo.czml");
+        if (chunkSeconds <= 0.) {
+            Path outputPath = intFilesPath.resolve("demo.czml");
 
+            try {
+                Files.writeString(outputPath, czml);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+
+        // Chunked output: base document, one file per segment and an index the viewer can stream them from
+        Path czmlPath = intFilesPath.resolve("czml");
+        JsonObject index = new JsonObject();
+        index.addProperty("base", "base.czml");
+        JsonArray segmentsJson = new JsonArray();
         try {
-            Files.writeString(outputPath, czml);
+            Files.createDirectories(czmlPath);
+            Files.writeString(czmlPath.resolve("base.czml"), czml);
+            for (int i = 0; i < segments.size(); ++i) {
+                CzmlSegment segment = segments.get(i);
+                String fileName = String.format("segment_%03d.czml", i);
+                segment.stringWriter.close();
+                Files.writeString(czmlPath.resolve(fileName), "[" + segment.stringWriter.toString() + "]");
+
+                JsonObject segmentJson = new JsonObject();
+                segmentJson.addProperty("file", fileName);
+                segmentJson.addProperty("startDate", isoUtc(startDate.shiftedBy(segment.start), utc));
+                segmentJson.addProperty("endDate", isoUtc(startDate.shiftedBy(segment.end), utc));
+                segmentsJson.add(segmentJson);
+            }
+            index.add("segments", segmentsJson);
+            Files.writeString(czmlPath.resolve("index.json"), new Gson().toJson(index));
         } catch (IOException e) {
             e.printStackTrace();
         }
+    }
 
+    // Length of the CZML segments from the optional "czml" object in mission.json, 0 when the output is not chunked
+    private static double chunkHours(JsonObject missionJson) {
+        if (!missionJson.has("czml")) {
+            return 0.;
+        }
+        JsonElement czml = missionJson.get("czml");
+        if (!czml.isJsonObject() || !czml.getAsJsonObject().has("chunkHours")) {
+            throw new IllegalArgumentException("czml must be an object with a chunkHours value!");
+        }
+        double chunkHours = czml.getAsJsonObject().get("chunkHours").getAsDouble();
+        if (!(chunkHours > 0.)) {
+            throw new IllegalArgumentException("chunkHours must be positive!");
+        }
+        return chunkHours;
+    }
+
+    private static JulianDate julianDate(AbsoluteDate date) {
+        double seconds = date.durationFrom(AbsoluteDate.JULIAN_EPOCH);
+        int days = (int)seconds % (24*3600);
+        double daySeconds = seconds - days*24*3600;
+        return new JulianDate(days, daySeconds);
+    }
+
+    /**
+     * Writes the color intervals (times in seconds from the start date) clipped to the segment time span, starting
+     * from the given interval index. Returns the index of the first interval overlapping the segment, which is where
+     * the search for the next segment starts.
+     */
+    private static int writeColorIntervals(ColorCesiumWriter colorWriter, ArrayList<Double> times, ArrayList<Color> colors,
+                                           AbsoluteDate startDate, CzmlSegment segment, int cursor) {
+        while (cursor < times.size() - 1 && times.get(cursor + 1) <= segment.start) {
+            ++cursor;
+        }
+        try (CesiumIntervalListWriter<ColorCesiumWriter> intervals = colorWriter.openMultipleIntervals()) {
+            for (int i = cursor; i < times.size() - 1 && times.get(i) < segment.end; ++i) {
+                double intervalStart = FastMath.max(times.get(i), segment.start);
+                double intervalEnd = FastMath.min(times.get(i+1), segment.end);
+                if (intervalStart >= intervalEnd) {
+                    continue;
+                }
+                try (ColorCesiumWriter interval = intervals.openInterval()) {
+                    interval.writeInterval(julianDate(startDate.shiftedBy(intervalStart)), julianDate(startDate.shiftedBy(intervalEnd)));
+                    interval.writeRgba(colors.get(i));
+                }
+            }
+        }
+        return cursor;
+    }
+
+    // ISO 8601 UTC string with the Z designator, so JavaScript clients do not read it as local time
+    private static String isoUtc(AbsoluteDate date, TimeScale utc) {
+        return date.toString(utc) + "Z";
+    }
+
+    private static class CzmlSegment {
+        // seconds from the mission start
+        final double start;
+        final double end;
+        final StringWriter stringWriter;
+        final CesiumOutputStream output;
+        final CesiumStreamWriter stream;
+
+        CzmlSegment(double start, double end) {
+            this(start, end, new StringWriter(), null, new CesiumStreamWriter());
+        }
+
+        CzmlSegment(double start, double end, StringWriter stringWriter, CesiumOutputStream output, CesiumStreamWriter stream) {
+            this.start = start;
+            this.end = end;
+            this.stringWriter = stringWriter;
+            if (output == null) {
+                output = new CesiumOutputStream(stringWriter);
+                output.setPrettyFormatting(true);
+            }
+            this.output = output;
+            this.stream = stream;
+        }
     }
 }
@@ -0,0 +1,268 @@
+import org.hipparchus.stat.descriptive.DescriptiveStatistics;
+import org.hipparchus.util.FastMath;
+import org.orekit.time.AbsoluteDate;
+import seakers.orekit.coverage.access.RiseSetTime;
+import seakers.orekit.coverage.access.TimeIntervalArray;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Combines the accesses of every satellite and instrument into a single access profile per target point and
+ * computes revisit, gap and coverage metrics over the whole constellation.
+ *
+ * Accesses are flattened into primitive arrays of start and end times (seconds from the mission start) so that the
+ * OR-combination is a sort and a single sweep per point, and points are processed in parallel on a pool of numThreads.
+ * The mean coverage is weighted by the weight of each point (1 unless set, e.g. the relative area of a grid cell).
+ * Points that are known to never be accessed can be counted without simulating them.
+ */
+public class ConstellationCoverage {
+    private final AbsoluteDate startDate;
+    private final double missionDuration;
+    private final int numThreads;
+    // targetLocation, accesses from every satellite and instrument
+    private final LinkedHashMap<String, ArrayList<TimeIntervalArray>> pointAccesses;
+    // targetLocation, weight in the mean coverage
+    private final HashMap<String, Double> pointWeights;
+    private int unreachablePoints;
+    private double unreachableWeight;
+
+    public ConstellationCoverage(AbsoluteDate startDate, AbsoluteDate endDate, Collection<String> pointNames,
+                                 int numThreads) {
+        this(startDate, endDate.durationFrom(startDate), numThreads);
+        for (String pointName: pointNames) {
+            pointAccesses.put(pointName, new ArrayList<>());
+        }
+    }
+
+    ConstellationCoverage(AbsoluteDate startDate, double missionDuration, int numThreads) {
+        this.startDate = startDate;
+        this.missionDuration = missionDuration;
+        this.numThreads = FastMath.max(numThreads, 1);
+        this.pointAccesses = new LinkedHashMap<>();
+        this.pointWeights = new HashMap<>();
+    }
+
+    public void setWeight(String pointName, double weight) {
+        pointWeights.put(pointName, weight);
+    }
+
+    // Counts a point that no satellite can reach: it adds no access and a single gap spanning the whole mission
+    public void addUnreachablePoint(double weight) {
+        ++unreachablePoints;
+        unreachableWeight += weight;
+    }
+
+    public void addAccesses(AccessesOutput accesses) {
+        accesses.output.forEach((satName, satAccesses) -> {
+            satAccesses.forEach((instrName, instrAccesses) -> {
+                instrAccesses.forEach((pointName, localAccesses) -> {
+                    pointAccesses.computeIfAbsent(pointName, k -> new ArrayList<>()).add(localAccesses);
+                });
+            });
+        });
+    }
+
+    public CoverageOutput compute() {
+        String[] pointNames = pointAccesses.keySet().toArray(new String[0]);
+        return compute(pointNames, i -> orCombine(pointAccesses.get(pointNames[i])));
+    }
+
+    /**
+     * Computes the metrics of the given points, where mergedAccesses gives the OR-combined [start, end, ...] times of
+     * the point at an index.
+     */
+    CoverageOutput compute(String[] pointNames, IntFunction<double[]> mergedAccesses) {
+        CoverageOutput.PointCoverage[] pointCoverages = new CoverageOutput.PointCoverage[pointNames.length];
+        double[][] revisitTimes = new double[pointNames.length][];
+        double[][] gapTimes = new double[pointNames.length][];
+
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        try {
+            pool.submit(() -> IntStream.range(0, pointNames.length).parallel().forEach(i -> {
+                double[] merged = mergedAccesses.apply(i);
+                double[] accessDurations = new double[merged.length / 2];
+                double[] revisits = new double[merged.length / 2];
+                double[] gaps = new double[merged.length / 2 + 1];
+                int numRevisits = 0;
+                int numGaps = 0;
+
+                double accessTime = 0.;
+                double previousEnd = 0.;
+                for (int k = 0; k < merged.length; k += 2) {
+                    double duration = merged[k+1] - merged[k];
+                    accessTime += duration;
+                    accessDurations[k / 2] = duration;
+                    double gap = merged[k] - previousEnd;
+                    if (gap > 0.) {
+                        gaps[numGaps++] = gap;
+                        if (k > 0) {
+                            revisits[numRevisits++] = gap;
+                        }
+                    }
+                    previousEnd = merged[k+1];
+                }
+                if (missionDuration - previousEnd > 0.) {
+                    gaps[numGaps++] = missionDuration - previousEnd;
+                }
+                revisitTimes[i] = Arrays.copyOf(revisits, numRevisits);
+                gapTimes[i] = Arrays.copyOf(gaps, numGaps);
+
+                CoverageOutput.PointCoverage pointCoverage = new CoverageOutput.PointCoverage();
+                pointCoverage.numberOfAccesses = merged.length / 2;
+                pointCoverage.coveragePercent = 100. * accessTime / missionDuration;
+                putStatistics(pointCoverage.accessStats, accessDurations);
+                putStatistics(pointCoverage.revisitStats, revisitTimes[i]);
+                putStatistics(pointCoverage.gapStats, gapTimes[i]);
+                pointCoverages[i] = pointCoverage;
+            })).get();
+        } catch (InterruptedException | ExecutionException ex) {
+            throw new IllegalStateException("coverage computation failed to complete.", ex);
+        } finally {
+            pool.shutdown();
+        }
+
+        // Global reduction
+        CoverageOutput coverage = new CoverageOutput();
+        double coverageSum = 0.;
+        double weightSum = unreachableWeight;
+        int coveredPoints = 0;
+        int numRevisits = 0;
+        int numGaps = missionDuration > 0. ? unreachablePoints : 0;
+        for (int i = 0; i < pointNames.length; ++i) {
+            coverage.points.put(pointNames[i], pointCoverages[i]);
+            double weight = pointWeights.getOrDefault(pointNames[i], 1.);
+            coverageSum += weight * pointCoverages[i].coveragePercent;
+            weightSum += weight;
+            if (pointCoverages[i].numberOfAccesses > 0) {
+                ++coveredPoints;
+            }
+            numRevisits += revisitTimes[i].length;
+            numGaps += gapTimes[i].length;
+        }
+        double[] allRevisits = new double[numRevisits];
+        double[] allGaps = new double[numGaps];
+        numRevisits = 0;
+        numGaps = 0;
+        for (int i = 0; i < pointNames.length; ++i) {
+            System.arraycopy(revisitTimes[i], 0, allRevisits, numRevisits, revisitTimes[i].length);
+            numRevisits += revisitTimes[i].length;
+            System.arraycopy(gapTimes[i], 0, allGaps, numGaps, gapTimes[i].length);
+            numGaps += gapTimes[i].length;
+        }
+        Arrays.fill(allGaps, numGaps, allGaps.length, missionDuration);
+
+        int totalPoints = pointNames.length + unreachablePoints;
+        coverage.unreachablePoints = unreachablePoints;
+        if (totalPoints > 0) {
+            coverage.pointsCoveredPercent = 100. * coveredPoints / totalPoints;
+        }
+        if (weightSum > 0.) {
+            coverage.meanCoveragePercent = coverageSum / weightSum;
+        }
+        putStatistics(coverage.revisitStats, allRevisits);
+        putStatistics(coverage.gapStats, allGaps);
+        return coverage;
+    }
+
+    private double[] orCombine(ArrayList<TimeIntervalArray> accessArrays) {
+        int count = 0;
+        for (TimeIntervalArray accessArray: accessArrays) {
+            count += accessArray.getRiseSetTimes().size() / 2 + 1;
+        }
+        double[] starts = new double[count];
+        double[] ends = new double[count];
+        int n = 0;
+        for (TimeIntervalArray accessArray: accessArrays) {
+            List<RiseSetTime> riseSetTimes = accessArray.getRiseSetTimes();
+            double[] times = new double[riseSetTimes.size()];
+            boolean[] isRise = new boolean[riseSetTimes.size()];
+            for (int k = 0; k < times.length; ++k) {
+                times[k] = riseSetTimes.get(k).getTime();
+                isRise[k] = riseSetTimes.get(k).isRise();
+            }
+            n = addIntervals(times, isRise, accessArray.getHead().durationFrom(startDate),
+                    accessArray.getTail().durationFrom(startDate), starts, ends, n);
+        }
+        return union(starts, ends, n, missionDuration);
+    }
+
+    /**
+     * Appends the intervals of one access array (rise/set times relative to its head) to starts/ends and returns the
+     * new number of intervals. An array starting with a set time was already accessing at its head, and one ending
+     * with a rise time is still accessing at its tail.
+     */
+    static int addIntervals(double[] times, boolean[] isRise, double head, double tail,
+                            double[] starts, double[] ends, int n) {
+        boolean isInside = false;
+        for (int k = 0; k < times.length; ++k) {
+            double t = head + times[k];
+            if (isRise[k] && !isInside) {
+                starts[n] = t;
+                isInside = true;
+            }
+            else if (!isRise[k]) {
+                if (!isInside) {
+                    starts[n] = head;
+                }
+                ends[n] = t;
+                ++n;
+                isInside = false;
+            }
+        }
+        if (isInside) {
+            ends[n] = tail;
+            ++n;
+        }
+        return n;
+    }
+
+    /**
+     * OR-combines n intervals into a flat array of [start, end, start, end, ...] times clipped to the mission. Starts
+     * and ends are sorted independently and swept with a depth counter, which gives the union without sorting interval
+     * pairs. Touching intervals are merged.
+     */
+    static double[] union(double[] starts, double[] ends, int n, double missionDuration) {
+        Arrays.sort(starts, 0, n);
+        Arrays.sort(ends, 0, n);
+
+        double[] merged = new double[2*n];
+        int m = 0;
+        int depth = 0;
+        int i = 0;
+        int j = 0;
+        while (j < n) {
+            if (i < n && starts[i] <= ends[j]) {
+                if (depth == 0) {
+                    merged[m++] = FastMath.max(starts[i], 0.);
+                }
+                ++depth;
+                ++i;
+            }
+            else {
+                --depth;
+                if (depth == 0) {
+                    merged[m++] = FastMath.min(ends[j], missionDuration);
+                }
+                ++j;
+            }
+        }
+        return Arrays.copyOf(merged, m);
+    }
+
+    private static void putStatistics(HashMap<String, Double> output, double[] values) {
+        if (values.length == 0) {
+            return;
+        }
+        DescriptiveStatistics stats = new DescriptiveStatistics(values);
+        output.put("max", stats.getMax());
+        output.put("mean", stats.getMean());
+        output.put("min", stats.getMin());
+        output.put("50th", stats.getPercentile(50));
+        output.put("80th", stats.getPercentile(80));
+        output.put("90th", stats.getPercentile(90));
+    }
+}
@@ -0,0 +1,35 @@
+import java.util.HashMap;
+
+public class CoverageOutput {
+    // number of points actually simulated (locations plus grid points passing the reachability check)
+    public int simulatedPoints;
+    // grid points no satellite can reach, counted in the global metrics without a per-point entry
+    public int unreachablePoints;
+    // global metrics for the whole set of target points, the mean coverage weighted by grid cell area
+    public double meanCoveragePercent;
+    public double pointsCoveredPercent;
+    public HashMap<String, Double> revisitStats;
+    public HashMap<String, Double> gapStats;
+    // targetLocation, metrics for the union of all satellite and instrument accesses
+    public HashMap<String, PointCoverage> points;
+
+    public CoverageOutput() {
+        revisitStats = new HashMap<>();
+        gapStats = new HashMap<>();
+        points = new HashMap<>();
+    }
+
+    public static class PointCoverage {
+        public int numberOfAccesses;
+        public double coveragePercent;
+        public HashMap<String, Double> accessStats;
+        public HashMap<String, Double> revisitStats;
+        public HashMap<String, Double> gapStats;
+
+        public PointCoverage() {
+            accessStats = new HashMap<>();
+            revisitStats = new HashMap<>();
+            gapStats = new HashMap<>();
+        }
+    }
+}
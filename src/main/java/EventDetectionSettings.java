@@ -0,0 +1,92 @@
+import com.google.gson.JsonObject;
+import org.hipparchus.util.FastMath;
+import org.orekit.propagation.analytical.tle.TLE;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Event detector settings for one instrument, derived from its orbit and FOV geometry.
+ *
+ * A pass through the center of the narrowest FOV dimension lasts centralPassDuration. Passes shorter than
+ * minPassFraction of that are grazing passes near the FOV edge. The max check interval equals the minimum pass
+ * duration, which is the largest step that still cannot miss a pass of that length. The convergence threshold
+ * resolves the pass edges to a fixed fraction of that duration. Both are what this instrument asks for; the values
+ * actually applied to its satellite are in SatelliteSettings.
+ */
+public class EventDetectionSettings {
+    private static final double THRESHOLD_FRACTION = 1e-3;
+    private static final double DEFAULT_MIN_PASS_FRACTION = 0.1;
+
+    public String satellite;
+    public String instrument;
+    public double orbitPeriod;
+    public double altitude;
+    public double minHalfAngleDeg;
+    public double centralPassDuration;
+    public double minPassDuration;
+    public double maxCheck;
+    public double threshold;
+
+    public EventDetectionSettings(String satellite, TLE tle, JsonObject instrObject, double minPassFraction) {
+        this.satellite = satellite;
+        this.instrument = instrObject.get("name").getAsString();
+        this.orbitPeriod = FootprintGeometry.orbitPeriod(tle);
+        this.altitude = FootprintGeometry.altitude(tle);
+        double halfAngle = FootprintGeometry.minHalfAngle(instrObject);
+        this.minHalfAngleDeg = FastMath.toDegrees(halfAngle);
+
+        // the sub-satellite point sweeps 2 pi of central angle per orbit
+        double centralAngle = FootprintGeometry.centralAngle(altitude, halfAngle);
+        this.centralPassDuration = 2 * centralAngle * orbitPeriod / (2 * FastMath.PI);
+        this.minPassDuration = minPassFraction * centralPassDuration;
+        this.maxCheck = minPassDuration;
+        this.threshold = FastMath.max(THRESHOLD_FRACTION * minPassDuration, 1e-6);
+    }
+
+    // Fraction of the central pass duration that must always be detected, from "eventDetection" in mission.json
+    public static double minPassFraction(JsonObject missionJson) {
+        if (!missionJson.has("eventDetection")) {
+            return DEFAULT_MIN_PASS_FRACTION;
+        }
+        double minPassFraction = missionJson.getAsJsonObject("eventDetection").get("minPassFraction").getAsDouble();
+        if (!(minPassFraction > 0. && minPassFraction <= 1.)) {
+            throw new IllegalArgumentException("minPassFraction must be in (0, 1]!");
+        }
+        return minPassFraction;
+    }
+
+    // The FOV analysis uses one detector setting per satellite, so the most demanding instrument sets it
+    public static SatelliteSettings apply(String satellite, Properties propertiesEventAnalysis,
+                                          List<EventDetectionSettings> payloadSettings) {
+        SatelliteSettings satelliteSettings = new SatelliteSettings(satellite, payloadSettings);
+        if (payloadSettings.isEmpty()) {
+            return satelliteSettings;
+        }
+        double maxCheck = Double.POSITIVE_INFINITY;
+        double threshold = Double.POSITIVE_INFINITY;
+        for (EventDetectionSettings settings: payloadSettings) {
+            maxCheck = FastMath.min(maxCheck, settings.maxCheck);
+            threshold = FastMath.min(threshold, settings.threshold);
+        }
+        propertiesEventAnalysis.setProperty("fov.stepSize", String.valueOf(maxCheck));
+        propertiesEventAnalysis.setProperty("fov.threshold", String.valueOf(threshold));
+        satelliteSettings.stepSize = maxCheck;
+        satelliteSettings.threshold = threshold;
+        return satelliteSettings;
+    }
+
+    // Detector settings applied to one satellite (unset without instruments) and the values each instrument asked for
+    public static class SatelliteSettings {
+        public String satellite;
+        public Double stepSize;
+        public Double threshold;
+        public ArrayList<EventDetectionSettings> instruments;
+
+        public SatelliteSettings(String satellite, List<EventDetectionSettings> instruments) {
+            this.satellite = satellite;
+            this.instruments = new ArrayList<>(instruments);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+import com.google.gson.JsonObject;
+import org.hipparchus.geometry.euclidean.threed.Vector3D;
+import org.hipparchus.util.FastMath;
+import org.orekit.frames.Frame;
+import org.orekit.propagation.analytical.tle.TLE;
+import org.orekit.propagation.analytical.tle.TLEPropagator;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.utils.Constants;
+
+public class FootprintGeometry {
+    private FootprintGeometry() {
+    }
+
+    public static double semiMajorAxis(TLE tle) {
+        double meanMotion = tle.getMeanMotion();
+        return FastMath.cbrt(Constants.WGS84_EARTH_MU / (meanMotion * meanMotion));
+    }
+
+    public static double orbitPeriod(TLE tle) {
+        return 2 * FastMath.PI / tle.getMeanMotion();
+    }
+
+    public static double altitude(TLE tle) {
+        return semiMajorAxis(tle) - Constants.WGS84_EARTH_EQUATORIAL_RADIUS;
+    }
+
+    // Off-nadir half angle (rad) that bounds the sensor FOV as defined in satellites.json
+    public static double maxHalfAngle(JsonObject instrObject) {
+        String fovType = instrObject.get("geometry_type").getAsString();
+        if (fovType.equals("rectangular")) {
+            double acrossTrackFov = FastMath.toRadians(instrObject.get("across_fov").getAsDouble());
+            double alongTrackFov = FastMath.toRadians(instrObject.get("along_fov").getAsDouble());
+            return FastMath.atan(FastMath.hypot(FastMath.tan(acrossTrackFov), FastMath.tan(alongTrackFov)));
+        }
+        else if (fovType.equals("conical")) {
+            return FastMath.toRadians(instrObject.get("conical_fov").getAsDouble());
+        }
+        else {
+            throw new IllegalArgumentException("Unexpected FOV type!");
+        }
+    }
+
+    // Narrowest off-nadir half angle (rad), which bounds the shortest pass through the FOV center
+    public static double minHalfAngle(JsonObject instrObject) {
+        String fovType = instrObject.get("geometry_type").getAsString();
+        if (fovType.equals("rectangular")) {
+            double acrossTrackFov = instrObject.get("across_fov").getAsDouble();
+            double alongTrackFov = instrObject.get("along_fov").getAsDouble();
+            return FastMath.toRadians(FastMath.min(acrossTrackFov, alongTrackFov));
+        }
+        return maxHalfAngle(instrObject);
+    }
+
+    // Earth central angle (rad) between the sub-satellite point and the edge of a nadir-pointing FOV
+    public static double centralAngle(double altitude, double halfAngle) {
+        double earthRadius = Constants.WGS84_EARTH_EQUATORIAL_RADIUS;
+        return centralAngle(earthRadius, earthRadius + altitude, halfAngle);
+    }
+
+    /**
+     * Upper bound of the Earth central angle (rad) a nadir-pointing sensor can reach, for pre-checks that must never
+     * drop a visible point: it uses the apogee radius and the polar radius, both of which widen the footprint.
+     */
+    public static double maxCentralAngle(TLE tle, double halfAngle) {
+        double apogeeRadius = semiMajorAxis(tle) * (1 + tle.getE());
+        double polarRadius = Constants.WGS84_EARTH_EQUATORIAL_RADIUS * (1 - Constants.WGS84_EARTH_FLATTENING);
+        return centralAngle(polarRadius, apogeeRadius, halfAngle);
+    }
+
+    // Central angle (rad) of the FOV edge on a sphere of bodyRadius seen from orbitRadius, or of the horizon if wider
+    public static double centralAngle(double bodyRadius, double orbitRadius, double halfAngle) {
+        double angularRadius = FastMath.asin(bodyRadius / orbitRadius);
+        if (halfAngle >= angularRadius) {
+            return FastMath.PI / 2 - angularRadius;
+        }
+        double elevation = FastMath.acos(FastMath.sin(halfAngle) / FastMath.sin(angularRadius));
+        return FastMath.PI / 2 - halfAngle - elevation;
+    }
+
+    // Upper bound of the angular rate (rad/s) of the sub-satellite point relative to the rotating Earth
+    public static double maxGroundTrackRate(TLE tle) {
+        double e = tle.getE();
+        double perigeeRate = tle.getMeanMotion() * (1 + e) * (1 + e) / FastMath.pow(1 - e * e, 1.5);
+        return perigeeRate + Constants.WGS84_EARTH_ANGULAR_VELOCITY;
+    }
+
+    // Geocentric latitude and longitude (rad) of the sub-satellite point sampled every step seconds
+    public static double[][] groundTrack(TLE tle, AbsoluteDate startDate, AbsoluteDate endDate, Frame earthFrame, double step) {
+        TLEPropagator propagator = TLEPropagator.selectExtrapolator(tle);
+        int samples = (int)FastMath.ceil(endDate.durationFrom(startDate) / step) + 1;
+        double[][] track = new double[2][samples];
+        for (int i = 0; i < samples; ++i) {
+            AbsoluteDate date = startDate.shiftedBy(FastMath.min(i * step, endDate.durationFrom(startDate)));
+            Vector3D position = propagator.propagate(date).getPVCoordinates(earthFrame).getPosition();
+            track[0][i] = position.getDelta();
+            track[1][i] = position.getAlpha();
+        }
+        return track;
+    }
+}
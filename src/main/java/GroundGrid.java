@@ -0,0 +1,316 @@
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.hipparchus.util.FastMath;
+import org.orekit.frames.Frame;
+import org.orekit.propagation.analytical.tle.TLE;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.time.TimeScale;
+import org.orekit.utils.Constants;
+import seakers.orekit.coverage.access.RiseSetTime;
+import seakers.orekit.coverage.access.TimeIntervalArray;
+
+import java.util.*;
+
+/**
+ * Ground grid generated from the "grid" definition in mission.json. Points are kept as primitive latitude/longitude
+ * arrays (degrees) so that large grids can be filtered before any CoveragePoint or TopocentricFrame is created.
+ */
+public class GroundGrid {
+    private double[] latitudes;
+    private double[] longitudes;
+    private int size;
+    private final boolean aggregateTiles;
+    // tolerance (s) below which access times are considered equal when aggregating tiles
+    private final double tileTolerance;
+    // grid rows: first point index (plus the end index), latitude (deg) and longitude step (deg)
+    private final double latMin;
+    private final double lonMin;
+    private final double resolution;
+    private final int[] rowStart;
+    private final double[] rowLatitudes;
+    private final double[] rowLonSteps;
+
+    public GroundGrid(JsonObject gridObject) {
+        latMin = gridObject.get("latMin").getAsDouble();
+        double latMax = gridObject.get("latMax").getAsDouble();
+        lonMin = gridObject.get("lonMin").getAsDouble();
+        double lonMax = gridObject.get("lonMax").getAsDouble();
+        resolution = gridObject.get("resolution").getAsDouble();
+        String gridType = gridObject.has("type") ? gridObject.get("type").getAsString() : "latlon";
+        aggregateTiles = gridObject.has("aggregateTiles") && gridObject.get("aggregateTiles").getAsBoolean();
+        tileTolerance = gridObject.has("tileTolerance") ? gridObject.get("tileTolerance").getAsDouble() : 1.;
+        if (resolution <= 0. || latMin > latMax || lonMin > lonMax || tileTolerance <= 0.) {
+            throw new IllegalArgumentException("Invalid grid definition!");
+        }
+
+        int rows = (int)FastMath.floor((latMax - latMin) / resolution) + 1;
+        latitudes = new double[rows];
+        longitudes = new double[rows];
+        size = 0;
+        rowStart = new int[rows + 1];
+        rowLatitudes = new double[rows];
+        rowLonSteps = new double[rows];
+        for (int row = 0; row < rows; ++row) {
+            double latitude = latMin + row * resolution;
+            double lonStep;
+            if (gridType.equals("latlon")) {
+                lonStep = resolution;
+            }
+            else if (gridType.equals("equalArea")) {
+                // widen the longitude step towards the poles so every cell covers roughly the same area
+                double cosLat = FastMath.cos(FastMath.toRadians(latitude));
+                lonStep = cosLat > 1e-6 ? FastMath.min(resolution / cosLat, 360.) : 360.;
+            }
+            else {
+                throw new IllegalArgumentException("Unexpected grid type!");
+            }
+            int columns = (int)FastMath.floor((lonMax - lonMin) / lonStep) + 1;
+            if (lonMax - lonMin >= 360.) {
+                columns = FastMath.max(1, (int)FastMath.floor(360. / lonStep));
+            }
+            rowStart[row] = size;
+            rowLatitudes[row] = latitude;
+            rowLonSteps[row] = lonStep;
+            for (int column = 0; column < columns; ++column) {
+                add(latitude, lonMin + column * lonStep);
+            }
+        }
+        rowStart[rows] = size;
+        latitudes = Arrays.copyOf(latitudes, size);
+        longitudes = Arrays.copyOf(longitudes, size);
+    }
+
+    private void add(double latitude, double longitude) {
+        if (size == latitudes.length) {
+            int capacity = FastMath.max(16, 2*size);
+            latitudes = Arrays.copyOf(latitudes, capacity);
+            longitudes = Arrays.copyOf(longitudes, capacity);
+        }
+        latitudes[size] = latitude;
+        longitudes[size] = longitude;
+        ++size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double getLatitude(int index) {
+        return latitudes[index];
+    }
+
+    public double getLongitude(int index) {
+        return longitudes[index];
+    }
+
+    // Area of the cell around a point relative to a resolution x resolution cell at the equator
+    public double getCellWeight(int index) {
+        int row = Arrays.binarySearch(rowStart, index);
+        if (row < 0) {
+            row = -row - 2;
+        }
+        double halfHeight = FastMath.toRadians(0.5 * resolution);
+        double latitude = FastMath.toRadians(latitudes[index]);
+        double north = FastMath.min(latitude + halfHeight, 0.5 * FastMath.PI);
+        double south = FastMath.max(latitude - halfHeight, -0.5 * FastMath.PI);
+        return (FastMath.sin(north) - FastMath.sin(south)) * rowLonSteps[row] / (2 * FastMath.sin(halfHeight) * resolution);
+    }
+
+    public String getName(int index) {
+        return "grid_" + index;
+    }
+
+    public boolean isAggregateTiles() {
+        return aggregateTiles;
+    }
+
+    public double getTileTolerance() {
+        return tileTolerance;
+    }
+
+    /**
+     * Indices of the points that fall inside the swath of each satellite over the mission, in the order of
+     * satellitesJson. Each ground track is sampled with SGP4 and every point within an upper bound of the footprint
+     * central angle of a sample is kept, padded by the track motion between samples, the nadir offset of the oblate
+     * Earth and one grid cell. The check can only keep extra points, never drop a visible one.
+     */
+    public int[][] reachablePoints(JsonArray satellitesJson, AbsoluteDate startDate, AbsoluteDate endDate,
+                                   Frame earthFrame, TimeScale utc) {
+        int[][] reachable = new int[satellitesJson.size()][];
+        for (int sat = 0; sat < satellitesJson.size(); ++sat) {
+            JsonObject satObject = satellitesJson.get(sat).getAsJsonObject();
+            TLE satTLE = new TLE(satObject.get("line1").getAsString(), satObject.get("line2").getAsString(), utc);
+            double halfAngle = 0.;
+            for (JsonElement instrument: satObject.get("sensors").getAsJsonArray()) {
+                halfAngle = FastMath.max(halfAngle, FootprintGeometry.maxHalfAngle(instrument.getAsJsonObject()));
+            }
+            double reach = FootprintGeometry.maxCentralAngle(satTLE, halfAngle);
+            // sample so the sub-satellite point moves at most half the reach between samples
+            double step = 0.5 * reach / FootprintGeometry.maxGroundTrackRate(satTLE);
+            double[][] track = FootprintGeometry.groundTrack(satTLE, startDate, endDate, earthFrame, step);
+            double margin = 0.25 * reach + Constants.WGS84_EARTH_FLATTENING + FastMath.toRadians(resolution);
+            boolean[] isReachable = new boolean[size];
+            markSwath(isReachable, track[0], track[1], reach + margin);
+            reachable[sat] = indices(isReachable);
+        }
+        return reachable;
+    }
+
+    private static int[] indices(boolean[] isSet) {
+        int[] indices = new int[isSet.length];
+        int count = 0;
+        for (int i = 0; i < isSet.length; ++i) {
+            if (isSet[i]) {
+                indices[count++] = i;
+            }
+        }
+        return Arrays.copyOf(indices, count);
+    }
+
+    // Marks the points within the given central angle (rad) of any track sample (geocentric latitude/longitude, rad)
+    void markSwath(boolean[] isReachable, double[] trackLatitudes, double[] trackLongitudes, double angle) {
+        int rows = rowLatitudes.length;
+        double[] rowSin = new double[rows];
+        double[] rowCos = new double[rows];
+        for (int row = 0; row < rows; ++row) {
+            double geocentric = geocentricLatitude(FastMath.toRadians(rowLatitudes[row]));
+            rowSin[row] = FastMath.sin(geocentric);
+            rowCos[row] = FastMath.cos(geocentric);
+        }
+        double cosAngle = FastMath.cos(angle);
+        double sinAngle = FastMath.sin(angle);
+
+        for (int s = 0; s < trackLatitudes.length; ++s) {
+            double sampleLatitude = trackLatitudes[s];
+            double sampleSin = FastMath.sin(sampleLatitude);
+            double sampleCos = FastMath.cos(sampleLatitude);
+            double sampleLongitude = FastMath.toDegrees(trackLongitudes[s]);
+
+            // rows are uniform in geodetic latitude, widen by one row on each side against rounding
+            double lowLatitude = geodeticLatitude(FastMath.max(sampleLatitude - angle, -FastMath.PI / 2));
+            double highLatitude = geodeticLatitude(FastMath.min(sampleLatitude + angle, FastMath.PI / 2));
+            int firstRow = FastMath.max(0, (int)FastMath.floor((FastMath.toDegrees(lowLatitude) - latMin) / resolution) - 1);
+            int lastRow = FastMath.min(rows - 1, (int)FastMath.ceil((FastMath.toDegrees(highLatitude) - latMin) / resolution) + 1);
+
+            for (int row = firstRow; row <= lastRow; ++row) {
+                int columns = rowStart[row + 1] - rowStart[row];
+                double lonStep = rowLonSteps[row];
+                if (sinAngle >= rowCos[row]) {
+                    markColumns(isReachable, row, 0, columns - 1, sampleSin, sampleCos, trackLongitudes[s], rowSin[row], rowCos[row], cosAngle);
+                    continue;
+                }
+                double halfWidth = FastMath.toDegrees(FastMath.asin(sinAngle / rowCos[row]));
+                for (int turn = -1; turn <= 1; ++turn) {
+                    double center = sampleLongitude + 360. * turn;
+                    int firstColumn = FastMath.max(0, (int)FastMath.floor((center - halfWidth - lonMin) / lonStep));
+                    int lastColumn = FastMath.min(columns - 1, (int)FastMath.ceil((center + halfWidth - lonMin) / lonStep));
+                    markColumns(isReachable, row, firstColumn, lastColumn, sampleSin, sampleCos, trackLongitudes[s], rowSin[row], rowCos[row], cosAngle);
+                }
+            }
+        }
+    }
+
+    private void markColumns(boolean[] isReachable, int row, int firstColumn, int lastColumn, double sampleSin,
+                             double sampleCos, double sampleLongitude, double pointSin, double pointCos, double cosAngle) {
+        for (int column = firstColumn; column <= lastColumn; ++column) {
+            int index = rowStart[row] + column;
+            if (isReachable[index]) {
+                continue;
+            }
+            double deltaLongitude = FastMath.toRadians(longitudes[index]) - sampleLongitude;
+            double cosDistance = sampleSin * pointSin + sampleCos * pointCos * FastMath.cos(deltaLongitude);
+            if (cosDistance >= cosAngle) {
+                isReachable[index] = true;
+            }
+        }
+    }
+
+    static double geocentricLatitude(double geodeticLatitude) {
+        double ratio = (1 - Constants.WGS84_EARTH_FLATTENING) * (1 - Constants.WGS84_EARTH_FLATTENING);
+        return FastMath.atan(ratio * FastMath.tan(geodeticLatitude));
+    }
+
+    private static double geodeticLatitude(double geocentricLatitude) {
+        double ratio = (1 - Constants.WGS84_EARTH_FLATTENING) * (1 - Constants.WGS84_EARTH_FLATTENING);
+        return FastMath.atan(FastMath.tan(geocentricLatitude) / ratio);
+    }
+
+    /**
+     * Replaces the grid points that share the same accesses for every satellite and instrument by a single tile
+     * entry in the output. Access times are compared after rounding to the tolerance (s), so detection noise does not
+     * split a tile. Only groups of two or more points become tiles, listed in output.tiles; the others keep their name.
+     */
+    public static void aggregateTiles(AccessesOutput mainOutput, Collection<String> pointNames, double tolerance) {
+        ArrayList<String> satNames = new ArrayList<>(mainOutput.output.keySet());
+        Collections.sort(satNames);
+
+        LinkedHashMap<AccessProfile, ArrayList<String>> profiles = new LinkedHashMap<>();
+        for (String pointName: pointNames) {
+            ArrayList<Double> times = new ArrayList<>();
+            for (String satName: satNames) {
+                HashMap<String, HashMap<String, TimeIntervalArray>> satAccesses = mainOutput.output.get(satName);
+                ArrayList<String> instrNames = new ArrayList<>(satAccesses.keySet());
+                Collections.sort(instrNames);
+                for (String instrName: instrNames) {
+                    TimeIntervalArray localAccesses = satAccesses.get(instrName).get(pointName);
+                    // separator so that accesses cannot shift from one instrument to the next
+                    times.add(Double.NaN);
+                    if (localAccesses == null) {
+                        continue;
+                    }
+                    for (RiseSetTime time: localAccesses.getRiseSetTimes()) {
+                        double rounded = FastMath.rint(time.getTime() / tolerance);
+                        times.add(time.isRise() ? rounded : -rounded - 1.);
+                    }
+                }
+            }
+            double[] profile = new double[times.size()];
+            for (int i = 0; i < profile.length; ++i) {
+                profile[i] = times.get(i);
+            }
+            profiles.computeIfAbsent(new AccessProfile(profile), k -> new ArrayList<>()).add(pointName);
+        }
+
+        mainOutput.tiles = new HashMap<>();
+        int tileIndex = 0;
+        for (ArrayList<String> members: profiles.values()) {
+            if (members.size() < 2) {
+                continue;
+            }
+            String tileName = "tile_" + tileIndex++;
+            mainOutput.tiles.put(tileName, members);
+            mainOutput.output.forEach((satName, satAccesses) -> {
+                satAccesses.forEach((instrName, instrAccesses) -> {
+                    TimeIntervalArray localAccesses = instrAccesses.get(members.get(0));
+                    for (String member: members) {
+                        instrAccesses.remove(member);
+                    }
+                    if (localAccesses != null) {
+                        instrAccesses.put(tileName, localAccesses);
+                    }
+                });
+            });
+        }
+    }
+
+    private static class AccessProfile {
+        private final double[] times;
+        private final int hash;
+
+        AccessProfile(double[] times) {
+            this.times = times;
+            this.hash = Arrays.hashCode(times);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof AccessProfile && Arrays.equals(times, ((AccessProfile) o).times);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -54,6 +54,9 @@ public class Propagator {
         // configure Orekit
         File home       = new File(System.getProperty("user.home"));
         File orekitData = new File(home, "orekit-data");
+        if (System.getProperty("orekit.data") != null) {
+            orekitData = new File(System.getProperty("orekit.data"));
+        }
         if (!orekitData.exists()) {
             System.err.format(Locale.US, "Failed to find %s folder%n",
                     orekitData.getAbsolutePath());
@@ -80,10 +83,15 @@ public class Propagator {
         handler.setLevel(level);
         LOGGER.addHandler(handler);
 
+        int processors = Runtime.getRuntime().availableProcessors();
+        run(Paths.get(System.getProperty("user.dir"), "int_files"), processors-3);
+    }
+
+    public static void run(Path intFilesPath, int numThreads) {
         // 1. Load JSON files with propagation information
         JsonParser parser = new JsonParser();
-        Path missionPath = Paths.get(System.getProperty("user.dir"),"int_files", "mission.json");
-        Path satellitesPath = Paths.get(System.getProperty("user.dir"),"int_files", "satellites.json");
+        Path missionPath = intFilesPath.resolve("mission.json");
+        Path satellitesPath = intFilesPath.resolve("satellites.json");
         JsonObject missionJson = null;
         JsonArray satellitesJson = null;
         try {
@@ -97,8 +105,7 @@ public class Propagator {
             System.exit(1);
         }
 
-        int processors = Runtime.getRuntime().availableProcessors();
-        OrekitConfig.init(processors-3);
+        OrekitConfig.init(numThreads);
 
         // 2. Get the start and end dates from an observation in the mission
         JsonArray observations = missionJson.getAsJsonArray("observations");
@@ -127,12 +134,34 @@ public class Propagator {
             CoveragePoint cp = new CoveragePoint(earthShape, pt, locObject.get("name").getAsString());
             targetLocations.add(cp);
         }
-        CoverageDefinition targetPoints = new CoverageDefinition("target_points", targetLocations);
 
-        // Iterate over satellites, build scenarios, run scenarios in parallel
+        // Generate the grid points, only creating coverage points for the ones some satellite can reach
         AccessesOutput mainOutput = new AccessesOutput();
-        for (JsonElement satellite: satellitesJson) {
-            JsonObject satObject = satellite.getAsJsonObject();
+        GroundGrid grid = null;
+        int[][] reachablePoints = new int[satellitesJson.size()][0];
+        TreeMap<Integer, CoveragePoint> gridPoints = new TreeMap<>();
+        if (missionJson.has("grid")) {
+            grid = new GroundGrid(missionJson.getAsJsonObject("grid"));
+            reachablePoints = grid.reachablePoints(satellitesJson, startDate, endDate, earthFrame, utc);
+            mainOutput.gridPoints = new HashMap<>();
+            for (int[] satReachable: reachablePoints) {
+                for (int index: satReachable) {
+                    if (!gridPoints.containsKey(index)) {
+                        GeodeticPoint pt = new GeodeticPoint(FastMath.toRadians(grid.getLatitude(index)), FastMath.toRadians(grid.getLongitude(index)), 0.);
+                        gridPoints.put(index, new CoveragePoint(earthShape, pt, grid.getName(index)));
+                        mainOutput.gridPoints.put(grid.getName(index), new double[] {grid.getLatitude(index), grid.getLongitude(index)});
+                    }
+                }
+            }
+            System.out.println(String.format("Grid points: %d, reachable: %d", grid.size(), gridPoints.size()));
+        }
+
+        double minPassFraction = EventDetectionSettings.minPassFraction(missionJson);
+        ArrayList<EventDetectionSettings.SatelliteSettings> eventSettings = new ArrayList<>();
+
+        // Iterate over satellites, build scenarios, run scenarios in parallel
+        for (int satIndex = 0; satIndex < satellitesJson.size(); ++satIndex) {
+            JsonObject satObject = satellitesJson.get(satIndex).getAsJsonObject();
             String tleLine1 = satObject.get("line1").getAsString();
             String tleLine2 = satObject.get("line2").getAsString();
 
@@ -142,6 +171,7 @@ public class Propagator {
 
             // define instruments based on JSON
             ArrayList<Instrument> payload = new ArrayList<>();
+            ArrayList<EventDetectionSettings> payloadSettings = new ArrayList<>();
             for (JsonElement instrument: satObject.get("sensors").getAsJsonArray()) {
                 JsonObject instrObject = instrument.getAsJsonObject();
                 String fovType = instrObject.get("geometry_type").getAsString();
@@ -161,6 +191,7 @@ public class Propagator {
                 String instrName = instrObject.get("name").getAsString();
                 Instrument view = new Instrument(instrName, fovDef, 100, 100);
                 payload.add(view);
+                payloadSettings.add(new EventDetectionSettings(satName, satTLE, instrObject, minPassFraction));
                 mainOutput.output.get(satName).put(instrName, new HashMap<>());
             }
 
@@ -169,6 +200,12 @@ public class Propagator {
             Satellite sat = new Satellite(satName, satTLE, nadirAttitude, payload);
             satellites.add(sat);
             Constellation constellation = new Constellation(satName, satellites);
+            // each satellite only simulates the named locations and the grid points inside its own swath
+            ArrayList<CoveragePoint> satPoints = new ArrayList<>(targetLocations);
+            for (int index: reachablePoints[satIndex]) {
+                satPoints.add(gridPoints.get(index));
+            }
+            CoverageDefinition targetPoints = new CoverageDefinition(satName + "_points", satPoints);
             targetPoints.assignConstellation(constellation);
             HashSet<CoverageDefinition> covDefs = new HashSet<>();
             covDefs.add(targetPoints);
@@ -179,6 +216,9 @@ public class Propagator {
             // can set the properties of the analyses
             Properties propertiesEventAnalysis = new Properties();
             propertiesEventAnalysis.setProperty("fov.saveAccess", "true");
+            EventDetectionSettings.SatelliteSettings satelliteSettings =
+                    EventDetectionSettings.apply(satName, propertiesEventAnalysis, payloadSettings);
+            eventSettings.add(satelliteSettings);
 
             // set the coverage event analyses
             EventAnalysisFactory eaf = new EventAnalysisFactory(startDate, endDate, inertialFrame, pf);
@@ -209,6 +249,12 @@ public class Propagator {
             DescriptiveStatistics accessStats = ea.getStatistics(AnalysisMetric.DURATION, true, new Properties());
             DescriptiveStatistics gapStats = ea.getStatistics(AnalysisMetric.DURATION, false, new Properties());
 
+            System.out.println(String.format("Detector step %s s, threshold %s s",
+                    satelliteSettings.stepSize, satelliteSettings.threshold));
+            for (EventDetectionSettings settings: payloadSettings) {
+                System.out.println(String.format("Instrument %s: min pass %s s, requested step %s s, threshold %s s",
+                        settings.instrument, settings.minPassDuration, settings.maxCheck, settings.threshold));
+            }
             System.out.println(String.format("Max access time %s", accessStats.getMax()));
             System.out.println(String.format("Mean access time %s", accessStats.getMean()));
             System.out.println(String.format("Min access time %s", accessStats.getMin()));
@@ -236,16 +282,68 @@ public class Propagator {
             long end = System.nanoTime();
             LOGGER.finest(String.format("Took %.4f sec", (end - start) / Math.pow(10, 9)));
         }
+        // Combine the accesses of all satellites and instruments for each point
+        ArrayList<String> pointNames = new ArrayList<>();
+        for (CoveragePoint point: targetLocations) {
+            pointNames.add(point.getName());
+        }
+        for (int index: gridPoints.keySet()) {
+            pointNames.add(grid.getName(index));
+        }
+        ConstellationCoverage constellationCoverage = new ConstellationCoverage(startDate, endDate, pointNames, numThreads);
+        constellationCoverage.addAccesses(mainOutput);
+        if (grid != null) {
+            // unreachable grid points are never accessed but still count towards the global coverage
+            for (int i = 0; i < grid.size(); ++i) {
+                if (gridPoints.containsKey(i)) {
+                    constellationCoverage.setWeight(grid.getName(i), grid.getCellWeight(i));
+                }
+                else {
+                    constellationCoverage.addUnreachablePoint(grid.getCellWeight(i));
+                }
+            }
+        }
+        CoverageOutput coverageOutput = constellationCoverage.compute();
+        coverageOutput.simulatedPoints = pointNames.size();
+
+        System.out.println(String.format("Mean coverage %s%%", coverageOutput.meanCoveragePercent));
+        System.out.println(String.format("Points covered %s%%", coverageOutput.pointsCoveredPercent));
+        coverageOutput.revisitStats.forEach((metric, value) -> {
+            System.out.println(String.format("%s revisit time %s", metric, value));
+        });
+
+        if (grid != null && grid.isAggregateTiles()) {
+            ArrayList<String> gridPointNames = new ArrayList<>();
+            for (int index: gridPoints.keySet()) {
+                gridPointNames.add(grid.getName(index));
+            }
+            GroundGrid.aggregateTiles(mainOutput, gridPointNames, grid.getTileTolerance());
+        }
+
         Gson gson = new Gson();
         String jsonOutput = gson.toJson(mainOutput);
 
-        Path outputPath = Paths.get(System.getProperty("user.dir"),"int_files", "accesses.json");
+        Path outputPath = intFilesPath.resolve("accesses.json");
         try (BufferedWriter writer = Files.newBufferedWriter(outputPath)) {
             writer.write(jsonOutput);
         } catch (IOException x) {
             System.err.format("IOException: %s%n", x);
         }
 
+        Path eventSettingsPath = intFilesPath.resolve("event_settings.json");
+        try (BufferedWriter writer = Files.newBufferedWriter(eventSettingsPath)) {
+            writer.write(gson.toJson(eventSettings));
+        } catch (IOException x) {
+            System.err.format("IOException: %s%n", x);
+        }
+
+        Path coveragePath = intFilesPath.resolve("coverage.json");
+        try (BufferedWriter writer = Files.newBufferedWriter(coveragePath)) {
+            writer.write(gson.toJson(coverageOutput));
+        } catch (IOException x) {
+            System.err.format("IOException: %s%n", x);
+        }
+
         OrekitConfig.end();
     }
 }
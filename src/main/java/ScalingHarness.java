@@ -0,0 +1,321 @@
+import com.google.gson.*;
+import org.hipparchus.util.FastMath;
+import org.orekit.propagation.analytical.tle.TLE;
+import org.orekit.time.AbsoluteDate;
+import org.orekit.time.TimeScale;
+import org.orekit.time.TimeScalesFactory;
+import org.orekit.utils.Constants;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Runs Propagator (and optionally CZMLGenerator) over a sweep of synthetic Walker-delta constellations, ground grids,
+ * mission lengths and thread counts, and records wall time, peak heap, GC time and output size for each run into
+ * bench_results/report.csv and bench_results/report.json.
+ *
+ * Usage: ScalingHarness [sweep.json]. Inputs are generated deterministically, and Orekit is configured from the
+ * bundled orekit-data-min folder unless the orekit.data system property points somewhere else. A discarded warmup
+ * run of the first configuration precedes the measured ones.
+ */
+public class ScalingHarness {
+    private static final String START_DATE = "2020-01-01T00:00:00.000";
+
+    public static void main(String[] args) {
+        if (System.getProperty("orekit.data") == null) {
+            System.setProperty("orekit.data", Paths.get(System.getProperty("user.dir"), "orekit-data-min").toString());
+        }
+        Propagator.configureOrekit();
+
+        // Sweep definition, every combination of the lists below is run
+        JsonObject sweep = new JsonObject();
+        if (args.length > 0) {
+            try (BufferedReader sweepFile = Files.newBufferedReader(Paths.get(args[0]))) {
+                sweep = new JsonParser().parse(sweepFile).getAsJsonObject();
+            }
+            catch (IOException e) {
+                e.printStackTrace();
+                System.exit(1);
+            }
+        }
+        int[] satelliteCounts = getInts(sweep, "satelliteCounts", new int[] {6, 12, 24});
+        double[] gridResolutions = getDoubles(sweep, "gridResolutions", new double[] {10., 5.});
+        double[] durationsHours = getDoubles(sweep, "durationsHours", new double[] {6., 24.});
+        int[] threadCounts = getInts(sweep, "threadCounts", new int[] {1, 4});
+        double altitude = getDouble(sweep, "altitudeKm", 700.) * 1000.;
+        double inclination = getDouble(sweep, "inclinationDeg", 53.);
+        double conicalFov = getDouble(sweep, "conicalFovDeg", 30.);
+        boolean runCzml = sweep.has("czml") && sweep.get("czml").getAsBoolean();
+        Path resultsPath = Paths.get(System.getProperty("user.dir"), "bench_results");
+
+        TimeScale utc = TimeScalesFactory.getUTC();
+        AbsoluteDate startDate = new AbsoluteDate(START_DATE, utc);
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+        // Discarded warmup run, so class loading, Orekit data loading and JIT compilation do not land on the first
+        // measured configuration
+        JsonArray warmupSatellites = walkerDelta(satelliteCounts[0], altitude, inclination, conicalFov, startDate);
+        JsonObject warmupMission = mission(startDate, durationsHours[0], gridResolutions[0], utc);
+        runConfiguration(resultsPath.resolve("warmup").resolve("int_files"), warmupMission, warmupSatellites,
+                threadCounts[0], runCzml, gson);
+
+        JsonArray report = new JsonArray();
+        StringBuilder csv = new StringBuilder("satellites,gridResolutionDeg,gridPoints,simulatedPoints,czmlPoints,durationHours,threads,wallTimeSec,czmlWallTimeSec,peakHeapMB,gcTimeSec,outputBytes\n");
+        int runIndex = 0;
+        for (int satelliteCount: satelliteCounts) {
+            JsonArray satellitesJson = walkerDelta(satelliteCount, altitude, inclination, conicalFov, startDate);
+            for (double gridResolution: gridResolutions) {
+                for (double durationHours: durationsHours) {
+                    for (int threadCount: threadCounts) {
+                        JsonObject missionJson = mission(startDate, durationHours, gridResolution, utc);
+                        Path intFilesPath = resultsPath.resolve(String.format("run_%03d", runIndex)).resolve("int_files");
+                        JsonObject result = runConfiguration(intFilesPath, missionJson, satellitesJson, threadCount, runCzml, gson);
+                        result.addProperty("satellites", satelliteCount);
+                        result.addProperty("gridResolutionDeg", gridResolution);
+                        result.addProperty("durationHours", durationHours);
+                        result.addProperty("threads", threadCount);
+                        report.add(result);
+
+                        csv.append(String.format(Locale.US, "%d,%s,%d,%d,%d,%s,%d,%.4f,%.4f,%.1f,%.3f,%d%n",
+                                satelliteCount, gridResolution, result.get("gridPoints").getAsInt(),
+                                result.get("simulatedPoints").getAsInt(), result.get("czmlPoints").getAsInt(),
+                                durationHours, threadCount, result.get("wallTimeSec").getAsDouble(),
+                                result.get("czmlWallTimeSec").getAsDouble(), result.get("peakHeapMB").getAsDouble(),
+                                result.get("gcTimeSec").getAsDouble(), result.get("outputBytes").getAsLong()));
+                        System.out.println(String.format("Run %d: %s", runIndex, result));
+                        ++runIndex;
+                    }
+                }
+            }
+        }
+
+        try (BufferedWriter writer = Files.newBufferedWriter(resultsPath.resolve("report.json"))) {
+            writer.write(gson.toJson(report));
+        } catch (IOException x) {
+            System.err.format("IOException: %s%n", x);
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(resultsPath.resolve("report.csv"))) {
+            writer.write(csv.toString());
+        } catch (IOException x) {
+            System.err.format("IOException: %s%n", x);
+        }
+    }
+
+    /**
+     * Writes the inputs, runs the pipeline and measures it; the simulated point count comes from coverage.json.
+     * CZMLGenerator only draws named locations, so it runs from its own folder with the grid points as locations.
+     */
+    private static JsonObject runConfiguration(Path intFilesPath, JsonObject missionJson, JsonArray satellitesJson,
+                                               int threadCount, boolean runCzml, Gson gson) {
+        Path czmlFilesPath = intFilesPath.resolveSibling("czml_int_files");
+        JsonObject czmlMissionJson = runCzml ? czmlMission(missionJson) : null;
+        writeInputs(intFilesPath, missionJson, satellitesJson, gson);
+        if (runCzml) {
+            writeInputs(czmlFilesPath, czmlMissionJson, satellitesJson, gson);
+        }
+
+        System.gc();
+        resetPeakHeap();
+        long gcStart = gcTime();
+        long start = System.nanoTime();
+        Propagator.run(intFilesPath, threadCount);
+        long propagatorEnd = System.nanoTime();
+        if (runCzml) {
+            CZMLGenerator.run(czmlFilesPath, threadCount);
+        }
+        long end = System.nanoTime();
+
+        JsonObject result = new JsonObject();
+        result.addProperty("gridPoints", new GroundGrid(missionJson.getAsJsonObject("grid")).size());
+        result.addProperty("simulatedPoints", simulatedPoints(intFilesPath));
+        result.addProperty("czmlPoints", runCzml ? czmlMissionJson.getAsJsonArray("locations").size() : 0);
+        result.addProperty("wallTimeSec", (propagatorEnd - start) / Math.pow(10, 9));
+        result.addProperty("czmlWallTimeSec", (end - propagatorEnd) / Math.pow(10, 9));
+        result.addProperty("peakHeapMB", peakHeap() / (1024. * 1024.));
+        result.addProperty("gcTimeSec", (gcTime() - gcStart) / 1000.);
+        result.addProperty("outputBytes", outputSize(intFilesPath) + (runCzml ? outputSize(czmlFilesPath) : 0));
+        return result;
+    }
+
+    private static void writeInputs(Path intFilesPath, JsonObject missionJson, JsonArray satellitesJson, Gson gson) {
+        try {
+            Files.createDirectories(intFilesPath);
+            Files.writeString(intFilesPath.resolve("mission.json"), gson.toJson(missionJson));
+            Files.writeString(intFilesPath.resolve("satellites.json"), gson.toJson(satellitesJson));
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    // Same mission with every grid point turned into a named location
+    private static JsonObject czmlMission(JsonObject missionJson) {
+        GroundGrid grid = new GroundGrid(missionJson.getAsJsonObject("grid"));
+        JsonArray locations = new JsonArray();
+        for (int i = 0; i < grid.size(); ++i) {
+            JsonObject location = new JsonObject();
+            location.addProperty("name", grid.getName(i));
+            location.addProperty("latitude", grid.getLatitude(i));
+            location.addProperty("longitude", grid.getLongitude(i));
+            locations.add(location);
+        }
+        JsonObject czmlMissionJson = new JsonObject();
+        czmlMissionJson.add("observations", missionJson.get("observations"));
+        czmlMissionJson.add("locations", locations);
+        return czmlMissionJson;
+    }
+
+    private static int simulatedPoints(Path intFilesPath) {
+        try (BufferedReader coverageFile = Files.newBufferedReader(intFilesPath.resolve("coverage.json"))) {
+            return new JsonParser().parse(coverageFile).getAsJsonObject().get("simulatedPoints").getAsInt();
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    // Walker-delta i:t/p/f pattern with p the largest divisor of t not above sqrt(t) and f = 1
+    private static JsonArray walkerDelta(int satelliteCount, double altitude, double inclination, double conicalFov,
+                                         AbsoluteDate epoch) {
+        int planes = 1;
+        for (int p = 1; p * p <= satelliteCount; ++p) {
+            if (satelliteCount % p == 0) {
+                planes = p;
+            }
+        }
+        int satsPerPlane = satelliteCount / planes;
+        double semiMajorAxis = Constants.WGS84_EARTH_EQUATORIAL_RADIUS + altitude;
+        double meanMotion = FastMath.sqrt(Constants.WGS84_EARTH_MU / (semiMajorAxis * semiMajorAxis * semiMajorAxis));
+
+        JsonArray satellitesJson = new JsonArray();
+        for (int plane = 0; plane < planes; ++plane) {
+            for (int k = 0; k < satsPerPlane; ++k) {
+                int satNumber = plane * satsPerPlane + k + 1;
+                double raan = 2 * FastMath.PI * plane / planes;
+                double meanAnomaly = 2 * FastMath.PI * k / satsPerPlane + 2 * FastMath.PI * plane / satelliteCount;
+                TLE tle = new TLE(satNumber, 'U', 2020, 1, "A", 0, 999, epoch, meanMotion, 0., 0.,
+                        0.0001, FastMath.toRadians(inclination), 0., raan, meanAnomaly, 1, 0.);
+
+                JsonObject sensor = new JsonObject();
+                sensor.addProperty("name", String.format("walker_%d_sensor", satNumber));
+                sensor.addProperty("geometry_type", "conical");
+                sensor.addProperty("conical_fov", conicalFov);
+                JsonArray sensors = new JsonArray();
+                sensors.add(sensor);
+
+                JsonObject satObject = new JsonObject();
+                satObject.addProperty("name", String.format("walker_%d", satNumber));
+                satObject.addProperty("line1", tle.getLine1());
+                satObject.addProperty("line2", tle.getLine2());
+                satObject.add("sensors", sensors);
+                satellitesJson.add(satObject);
+            }
+        }
+        return satellitesJson;
+    }
+
+    private static JsonObject mission(AbsoluteDate startDate, double durationHours, double gridResolution, TimeScale utc) {
+        JsonObject observation = new JsonObject();
+        observation.addProperty("startDate", startDate.toString(utc));
+        observation.addProperty("endDate", startDate.shiftedBy(durationHours * 3600.).toString(utc));
+        JsonArray observations = new JsonArray();
+        observations.add(observation);
+
+        JsonObject grid = new JsonObject();
+        grid.addProperty("latMin", -90.);
+        grid.addProperty("latMax", 90.);
+        grid.addProperty("lonMin", -180.);
+        grid.addProperty("lonMax", 180.);
+        grid.addProperty("resolution", gridResolution);
+        grid.addProperty("type", "equalArea");
+
+        JsonObject missionJson = new JsonObject();
+        missionJson.add("observations", observations);
+        missionJson.add("locations", new JsonArray());
+        missionJson.add("grid", grid);
+        return missionJson;
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool: ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    // Sum of the per-pool peaks, an upper bound of the peak heap usage during the run
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool: ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    // Accumulated GC time in milliseconds
+    private static long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc: ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += FastMath.max(0, gc.getCollectionTime());
+        }
+        return time;
+    }
+
+    // Size in bytes of everything written next to the generated inputs
+    private static long outputSize(Path intFilesPath) {
+        try (Stream<Path> files = Files.walk(intFilesPath)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(file -> !file.getFileName().toString().equals("mission.json"))
+                    .filter(file -> !file.getFileName().toString().equals("satellites.json"))
+                    .mapToLong(file -> file.toFile().length())
+                    .sum();
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    private static int[] getInts(JsonObject sweep, String key, int[] defaults) {
+        if (!sweep.has(key)) {
+            return defaults;
+        }
+        JsonArray values = sweep.getAsJsonArray(key);
+        int[] result = new int[values.size()];
+        for (int i = 0; i < result.length; ++i) {
+            result[i] = values.get(i).getAsInt();
+        }
+        return result;
+    }
+
+    private static double[] getDoubles(JsonObject sweep, String key, double[] defaults) {
+        if (!sweep.has(key)) {
+            return defaults;
+        }
+        JsonArray values = sweep.getAsJsonArray(key);
+        double[] result = new double[values.size()];
+        for (int i = 0; i < result.length; ++i) {
+            result[i] = values.get(i).getAsDouble();
+        }
+        return result;
+    }
+
+    private static double getDouble(JsonObject sweep, String key, double defaultValue) {
+        return sweep.has(key) ? sweep.get(key).getAsDouble() : defaultValue;
+    }
+}
@@ -0,0 +1,109 @@
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ConstellationCoverageTest {
+    private static final double MISSION_DURATION = 1000.;
+    private static final double EPS = 1e-9;
+
+    @Test
+    public void unionMergesOverlappingIntervals() {
+        double[] starts = {100., 50., 400.};
+        double[] ends = {300., 150., 500.};
+        double[] merged = ConstellationCoverage.union(starts, ends, 3, MISSION_DURATION);
+        assertArrayEquals(new double[] {50., 300., 400., 500.}, merged, EPS);
+    }
+
+    @Test
+    public void unionMergesTouchingIntervals() {
+        double[] starts = {100., 200.};
+        double[] ends = {200., 300.};
+        double[] merged = ConstellationCoverage.union(starts, ends, 2, MISSION_DURATION);
+        assertArrayEquals(new double[] {100., 300.}, merged, EPS);
+    }
+
+    @Test
+    public void unionKeepsNestedIntervalsAndClipsToMission() {
+        double[] starts = {-50., 10., 900.};
+        double[] ends = {200., 20., 1200.};
+        double[] merged = ConstellationCoverage.union(starts, ends, 3, MISSION_DURATION);
+        assertArrayEquals(new double[] {0., 200., 900., 1000.}, merged, EPS);
+    }
+
+    @Test
+    public void unionOfNothingIsEmpty() {
+        assertEquals(0, ConstellationCoverage.union(new double[0], new double[0], 0, MISSION_DURATION).length);
+    }
+
+    @Test
+    public void setFirstArrayStartsAtHead() {
+        double[] starts = new double[2];
+        double[] ends = new double[2];
+        // accessing at the head, then one full access
+        double[] times = {30., 100., 200.};
+        boolean[] isRise = {false, true, false};
+        int n = ConstellationCoverage.addIntervals(times, isRise, 10., MISSION_DURATION, starts, ends, 0);
+        assertEquals(2, n);
+        assertArrayEquals(new double[] {10., 110.}, starts, EPS);
+        assertArrayEquals(new double[] {40., 210.}, ends, EPS);
+    }
+
+    @Test
+    public void riseLastArrayEndsAtTail() {
+        double[] starts = new double[2];
+        double[] ends = new double[2];
+        double[] times = {100., 200., 800.};
+        boolean[] isRise = {true, false, true};
+        int n = ConstellationCoverage.addIntervals(times, isRise, 0., 950., starts, ends, 0);
+        assertEquals(2, n);
+        assertArrayEquals(new double[] {100., 800.}, starts, EPS);
+        assertArrayEquals(new double[] {200., 950.}, ends, EPS);
+    }
+
+    @Test
+    public void arraysFromSeveralSatellitesAreCombined() {
+        double[] starts = new double[4];
+        double[] ends = new double[4];
+        int n = ConstellationCoverage.addIntervals(new double[] {50., 300.}, new boolean[] {false, true}, 0., MISSION_DURATION, starts, ends, 0);
+        n = ConstellationCoverage.addIntervals(new double[] {40., 60., 350., 400.}, new boolean[] {true, false, true, false}, 0., MISSION_DURATION, starts, ends, n);
+        double[] merged = ConstellationCoverage.union(starts, ends, n, MISSION_DURATION);
+        assertArrayEquals(new double[] {0., 60., 300., 1000.}, merged, EPS);
+    }
+
+    @Test
+    public void computeGivesRevisitsAndGapsPerPointAndOverall() {
+        ConstellationCoverage constellationCoverage = new ConstellationCoverage(null, MISSION_DURATION, 2);
+        constellationCoverage.setWeight("a", 2.);
+        constellationCoverage.addUnreachablePoint(1.);
+        double[][] merged = {{100., 200., 500., 600.}, {}};
+        CoverageOutput coverage = constellationCoverage.compute(new String[] {"a", "b"}, i -> merged[i]);
+
+        // a: revisits [300], gaps [100, 300, 400]
+        CoverageOutput.PointCoverage a = coverage.points.get("a");
+        assertEquals(2, a.numberOfAccesses);
+        assertEquals(20., a.coveragePercent, EPS);
+        assertEquals(300., a.revisitStats.get("max"), EPS);
+        assertEquals(300., a.revisitStats.get("min"), EPS);
+        assertEquals(400., a.gapStats.get("max"), EPS);
+        assertEquals(100., a.gapStats.get("min"), EPS);
+        assertEquals(800. / 3., a.gapStats.get("mean"), EPS);
+        // b: no revisits, gaps [1000]
+        CoverageOutput.PointCoverage b = coverage.points.get("b");
+        assertEquals(0, b.numberOfAccesses);
+        assertTrue(b.revisitStats.isEmpty());
+        assertEquals(1000., b.gapStats.get("min"), EPS);
+
+        // overall: revisits [300], gaps [100, 300, 400, 1000, 1000] including the unreachable point
+        assertEquals(2, coverage.points.size());
+        assertEquals(1, coverage.unreachablePoints);
+        assertEquals(2. * 20. / 4., coverage.meanCoveragePercent, EPS);
+        assertEquals(100. / 3., coverage.pointsCoveredPercent, EPS);
+        assertEquals(300., coverage.revisitStats.get("mean"), EPS);
+        assertEquals(1000., coverage.gapStats.get("max"), EPS);
+        assertEquals(100., coverage.gapStats.get("min"), EPS);
+        assertEquals(560., coverage.gapStats.get("mean"), EPS);
+        assertEquals(400., coverage.gapStats.get("50th"), EPS);
+    }
+}
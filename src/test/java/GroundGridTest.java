@@ -0,0 +1,105 @@
+import com.google.gson.JsonObject;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GroundGridTest {
+    private static final double EPS = 1e-9;
+
+    private static GroundGrid grid(double latMin, double latMax, double lonMin, double lonMax, double resolution, String type) {
+        JsonObject gridObject = new JsonObject();
+        gridObject.addProperty("latMin", latMin);
+        gridObject.addProperty("latMax", latMax);
+        gridObject.addProperty("lonMin", lonMin);
+        gridObject.addProperty("lonMax", lonMax);
+        gridObject.addProperty("resolution", resolution);
+        gridObject.addProperty("type", type);
+        return new GroundGrid(gridObject);
+    }
+
+    @Test
+    public void regionalLatLonGridIncludesBothEdges() {
+        GroundGrid grid = grid(0., 10., 0., 20., 5., "latlon");
+        assertEquals(15, grid.size());
+        assertEquals(0., grid.getLatitude(0), EPS);
+        assertEquals(20., grid.getLongitude(4), EPS);
+        assertEquals(5., grid.getLatitude(5), EPS);
+        assertEquals(10., grid.getLatitude(14), EPS);
+    }
+
+    @Test
+    public void globalLatLonGridWrapsWithoutDuplicateMeridian() {
+        GroundGrid grid = grid(-90., 90., -180., 180., 30., "latlon");
+        // 7 rows from pole to pole, 12 columns each since -180 and 180 are the same meridian
+        assertEquals(84, grid.size());
+        assertEquals(-90., grid.getLatitude(0), EPS);
+        assertEquals(-180., grid.getLongitude(0), EPS);
+        assertEquals(150., grid.getLongitude(11), EPS);
+        assertEquals(-60., grid.getLatitude(12), EPS);
+        assertEquals(90., grid.getLatitude(83), EPS);
+    }
+
+    @Test
+    public void equalAreaGridWidensTowardsThePoles() {
+        GroundGrid grid = grid(-90., 90., -180., 180., 30., "equalArea");
+        // rows at -90, -60, -30, 0, 30, 60, 90 have 1, 6, 10, 12, 10, 6 and 1 columns
+        assertEquals(46, grid.size());
+        assertEquals(-90., grid.getLatitude(0), EPS);
+        assertEquals(-60., grid.getLatitude(1), EPS);
+        assertEquals(-180. + 60., grid.getLongitude(2), EPS);
+        assertEquals(-30., grid.getLatitude(7), EPS);
+        assertEquals(0., grid.getLatitude(17), EPS);
+        assertEquals(30., grid.getLatitude(29), EPS);
+        assertEquals(90., grid.getLatitude(45), EPS);
+        // cells at the equator weigh one, the polar caps less
+        assertEquals(1., grid.getCellWeight(17), EPS);
+        assertTrue(grid.getCellWeight(0) < 1.);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidGridIsRejected() {
+        grid(10., 0., 0., 20., 5., "latlon");
+    }
+
+    @Test
+    public void swathMatchesBruteForceOnLatLonGrid() {
+        assertSwathMatchesBruteForce(grid(-90., 90., -180., 180., 5., "latlon"));
+    }
+
+    @Test
+    public void swathMatchesBruteForceOnEqualAreaGrid() {
+        assertSwathMatchesBruteForce(grid(-90., 90., -180., 180., 5., "equalArea"));
+    }
+
+    @Test
+    public void swathMatchesBruteForceAcrossTheAntimeridian() {
+        // regional grid running past 180 degrees east
+        assertSwathMatchesBruteForce(grid(-30., 30., 160., 200., 2., "latlon"));
+    }
+
+    private static void assertSwathMatchesBruteForce(GroundGrid grid) {
+        // samples close to +/-180 degrees longitude and at high latitude in both hemispheres
+        double[] trackLatitudes = {0.1, 0.3, -0.2, 1.45, 1.52, -1.5, -1.35, 0.8};
+        double[] trackLongitudes = {3.1, -3.13, 3.14, 0.5, -2.9, 3.0, -3.1, -1.2};
+        double angle = 0.2;
+
+        boolean[] isReachable = new boolean[grid.size()];
+        grid.markSwath(isReachable, trackLatitudes, trackLongitudes, angle);
+
+        int count = 0;
+        for (int i = 0; i < grid.size(); ++i) {
+            double pointLatitude = GroundGrid.geocentricLatitude(Math.toRadians(grid.getLatitude(i)));
+            double pointLongitude = Math.toRadians(grid.getLongitude(i));
+            boolean isInside = false;
+            for (int s = 0; s < trackLatitudes.length; ++s) {
+                double cosDistance = Math.sin(trackLatitudes[s]) * Math.sin(pointLatitude)
+                        + Math.cos(trackLatitudes[s]) * Math.cos(pointLatitude) * Math.cos(pointLongitude - trackLongitudes[s]);
+                isInside |= Math.acos(Math.min(cosDistance, 1.)) <= angle;
+            }
+            assertEquals("grid point " + i, isInside, isReachable[i]);
+            count += isInside ? 1 : 0;
+        }
+        assertTrue(count > 0 && count < grid.size());
+    }
+}